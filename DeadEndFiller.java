@@ -0,0 +1,139 @@
+package maze;
+
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
+/**
+ * Решает идеальный лабиринт заливкой тупиков прямо в его матрице, без графа
+ *
+ * Тупик - свободная клетка не на границе, у которой не больше одного свободного соседа
+ * Тупик заливается (FILLED), после чего его единственный сосед может сам стать тупиком,
+ * поэтому заливка идёт по коридору, пока не упрётся в развилку. Когда тупиков не осталось,
+ * свободными остаются только клетки пути между выходами, они отмечаются как Maze.PATH,
+ * а залитые клетки снова становятся Maze.PASS
+ *
+ * Кроме самого лабиринта память нужна только под список полос при параллельной заливке
+ *
+ * Параллельная заливка: лабиринт делится на горизонтальные полосы, каждый поток заливает только
+ * внутренние линии своей полосы, а крайние линии полос не трогает никто, поэтому потоки не пишут
+ * в клетки, которые читают другие. После этого тупики, которые остались у краёв полос,
+ * дозаливаются в одном потоке. Порядок заливки не влияет на результат
+ */
+public class DeadEndFiller {
+    final static int FILLED = 2;
+    final static int MIN_STRIPE_HEIGHT = 64;
+
+    /**
+     * Находит путь в лабиринте и отмечает его клетки значением Maze.PATH
+     * @param maze лабиринт
+     * @param threads кол-во потоков для заливки полос
+     */
+    public static void solve(int[][] maze, int threads) {
+        int stripes = Math.min(threads, maze.length / MIN_STRIPE_HEIGHT);
+
+        if (stripes > 1 && fillStripes(maze, stripes)) {
+            for (int i = 0; i < stripes; i++) {
+                int from = maze.length * i / stripes;
+                int to = maze.length * (i + 1) / stripes;
+                fillRows(maze, 0, maze.length, from, from + 1);
+                fillRows(maze, 0, maze.length, to - 1, to);
+            }
+        } else {
+            fillRows(maze, 0, maze.length, 0, maze.length);
+        }
+
+        for (int[] line : maze) {
+            for (int j = 0; j < line.length; j++) {
+                if (line[j] == FILLED) {
+                    line[j] = Maze.PASS;
+                } else if (line[j] == Maze.PASS) {
+                    line[j] = Maze.PATH;
+                }
+            }
+        }
+    }
+
+    /**
+     * Заливает внутренние линии каждой полосы в отдельном потоке
+     * @return true, если все полосы залиты, false, если заливку прервали
+     */
+    private static boolean fillStripes(int[][] maze, int stripes) {
+        ExecutorService executor = Executors.newFixedThreadPool(stripes);
+        ArrayList<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < stripes; i++) {
+            int from = maze.length * i / stripes;
+            int to = maze.length * (i + 1) / stripes;
+            tasks.add(() -> {
+                fillRows(maze, from + 1, to - 1, from + 1, to - 1);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Ищет тупики в линиях [scanFrom, scanTo) и заливает их, не выходя за линии [from, to)
+     */
+    private static void fillRows(int[][] maze, int from, int to, int scanFrom, int scanTo) {
+        for (int i = scanFrom; i < scanTo; i++) {
+            for (int j = 0; j < maze[i].length; j++) {
+                fillDeadEnd(maze, i, j, from, to);
+            }
+        }
+    }
+
+    /**
+     * Заливает тупик и идёт к его единственному соседу, пока тот тоже оказывается тупиком
+     */
+    private static void fillDeadEnd(int[][] maze, int y, int x, int from, int to) {
+        while (isDeadEnd(maze, y, x, from, to)) {
+            maze[y][x] = FILLED;
+
+            if (isOpen(maze[y - 1][x])) {
+                y--;
+            } else if (isOpen(maze[y + 1][x])) {
+                y++;
+            } else if (isOpen(maze[y][x - 1])) {
+                x--;
+            } else if (isOpen(maze[y][x + 1])) {
+                x++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static boolean isDeadEnd(int[][] maze, int y, int x, int from, int to) {
+        if (y < from || y >= to || y == 0 || y == maze.length - 1 || x == 0 || x == maze[y].length - 1) {
+            return false;
+        }
+
+        if (!isOpen(maze[y][x])) return false;
+
+        int neighbours = 0;
+        if (isOpen(maze[y - 1][x])) neighbours++;
+        if (isOpen(maze[y + 1][x])) neighbours++;
+        if (isOpen(maze[y][x - 1])) neighbours++;
+        if (isOpen(maze[y][x + 1])) neighbours++;
+
+        return neighbours <= 1;
+    }
+
+    private static boolean isOpen(int cell) {
+        return cell == Maze.PASS || cell == Maze.PATH;
+    }
+}
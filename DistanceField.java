@@ -0,0 +1,281 @@
+package maze;
+
+import javafx.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Поле расстояний для лабиринта с любым кол-вом выходов
+ * Выход - любая свободная клетка на границе лабиринта (Graph.findEntries же ищет только один вход слева
+ * и один справа)
+ *
+ * Один поиск в ширину сразу от всех выходов даёт для каждой клетки расстояние до ближайшего выхода и
+ * номер этого выхода
+ *
+ * Для маршрутов между выходами при первом запросе делается ещё один поиск в ширину от 0-го выхода,
+ * который сохраняет глубину каждой клетки. Если лабиринт идеальный (без циклов, как у MazeGenerator),
+ * то маршрут между любыми двумя выходами проходит через их общего предка в этом дереве, поэтому
+ * для всех пар хватает одного прохода. Если в лабиринте есть циклы, поиск повторяется от начального
+ * выхода запроса
+ *
+ * Клетки нумеруются как y * width + x, все массивы имеют размер кол-ва клеток
+ */
+public class DistanceField {
+    int[][] maze;
+    int height;
+    int width;
+    ArrayList<Pair<Integer, Integer>> exits = new ArrayList<>();
+    int[] distancesToExit;
+    int[] nearestExits;
+    int[] depths;
+    int[] queue;
+    int rootExit = -1;
+    boolean isPerfect;          //нет ли циклов в части лабиринта, достижимой от rootExit
+
+    public DistanceField(int[][] maze) {
+        this.maze = maze;
+        this.height = maze.length;
+        this.width = maze[0].length;
+        this.queue = new int[height * width];
+        findExits();
+        fillDistancesToExit();
+    }
+
+    /**
+     * Добавляет в список все свободные клетки на границе лабиринта, обходя её по часовой стрелке
+     */
+    private void findExits() {
+        for (int x = 0; x < width; x++) addExit(0, x);
+        for (int y = 1; y < height; y++) addExit(y, width - 1);
+        for (int x = width - 2; x >= 0 && height > 1; x--) addExit(height - 1, x);
+        for (int y = height - 2; y > 0 && width > 1; y--) addExit(y, 0);
+    }
+
+    private void addExit(int y, int x) {
+        if (maze[y][x] != Maze.WALL) exits.add(new Pair<>(y, x));
+    }
+
+    /**
+     * @return номер выхода в клетке (y, x) или -1, если там нет выхода
+     */
+    public int getExit(int y, int x) {
+        for (int i = 0; i < exits.size(); i++) {
+            if (exits.get(i).getKey() == y && exits.get(i).getValue() == x) return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Поиск в ширину, в очередь которого сначала кладутся все выходы
+     * Каждая клетка получает расстояние того выхода, волна от которого пришла к ней первой
+     */
+    private void fillDistancesToExit() {
+        distancesToExit = new int[height * width];
+        nearestExits = new int[height * width];
+        Arrays.fill(distancesToExit, -1);
+        Arrays.fill(nearestExits, -1);
+
+        int tail = 0;
+        for (int i = 0; i < exits.size(); i++) {
+            int cell = exits.get(i).getKey() * width + exits.get(i).getValue();
+            distancesToExit[cell] = 0;
+            nearestExits[cell] = i;
+            queue[tail++] = cell;
+        }
+
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            int y = cell / width;
+            int x = cell % width;
+
+            if (y > 0) tail = visit(cell, cell - width, tail);
+            if (y < height - 1) tail = visit(cell, cell + width, tail);
+            if (x > 0) tail = visit(cell, cell - 1, tail);
+            if (x < width - 1) tail = visit(cell, cell + 1, tail);
+        }
+    }
+
+    private int visit(int from, int to, int tail) {
+        if (distancesToExit[to] != -1 || maze[to / width][to % width] == Maze.WALL) return tail;
+
+        distancesToExit[to] = distancesToExit[from] + 1;
+        nearestExits[to] = nearestExits[from];
+        queue[tail] = to;
+        return tail + 1;
+    }
+
+    /**
+     * Поиск в ширину от одного выхода, заполняет глубину каждой достижимой клетки
+     * Заодно проверяет, что часть лабиринта с этим выходом идеальная: у каждой клетки, кроме начальной,
+     * должен быть ровно один сосед не глубже её самой - её родитель
+     * Результат проверки сохраняется в isPerfect
+     * @param exit номер начального выхода
+     */
+    private void fillDepths(int exit) {
+        if (depths == null) depths = new int[height * width];
+        Arrays.fill(depths, -1);
+        rootExit = exit;
+        isPerfect = true;
+
+        int root = exits.get(exit).getKey() * width + exits.get(exit).getValue();
+        depths[root] = 0;
+        queue[0] = root;
+        int tail = 1;
+
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            int y = cell / width;
+            int x = cell % width;
+            int parents = 0;
+
+            if (y > 0) parents += isParent(cell, cell - width) ? 1 : 0;
+            if (y < height - 1) parents += isParent(cell, cell + width) ? 1 : 0;
+            if (x > 0) parents += isParent(cell, cell - 1) ? 1 : 0;
+            if (x < width - 1) parents += isParent(cell, cell + 1) ? 1 : 0;
+
+            if (parents > (cell == root ? 0 : 1)) isPerfect = false;
+
+            if (y > 0) tail = visitDepth(cell, cell - width, tail);
+            if (y < height - 1) tail = visitDepth(cell, cell + width, tail);
+            if (x > 0) tail = visitDepth(cell, cell - 1, tail);
+            if (x < width - 1) tail = visitDepth(cell, cell + 1, tail);
+        }
+    }
+
+    private boolean isParent(int cell, int neighbour) {
+        return depths[neighbour] != -1 && depths[neighbour] <= depths[cell];
+    }
+
+    private int visitDepth(int from, int to, int tail) {
+        if (depths[to] != -1 || maze[to / width][to % width] == Maze.WALL) return tail;
+
+        depths[to] = depths[from] + 1;
+        queue[tail] = to;
+        return tail + 1;
+    }
+
+    /**
+     * Возвращает соседа клетки, который на 1 ближе к начальному выходу последнего поиска
+     */
+    private int getParent(int cell) {
+        int y = cell / width;
+        int x = cell % width;
+
+        if (y > 0 && depths[cell - width] == depths[cell] - 1) return cell - width;
+        if (y < height - 1 && depths[cell + width] == depths[cell] - 1) return cell + width;
+        if (x > 0 && depths[cell - 1] == depths[cell] - 1) return cell - 1;
+        return cell + 1;
+    }
+
+    /**
+     * Находит общего предка двух выходов в дереве поиска от 0-го выхода
+     * Если лабиринт не идеальный или выходы в другой его части, то корнем становится начальный выход,
+     * тогда предком всегда является он сам
+     * @return номер клетки предка или -1, если выходы не связаны
+     */
+    private int getCommonParent(int from, int to) {
+        int first = exits.get(from).getKey() * width + exits.get(from).getValue();
+        int second = exits.get(to).getKey() * width + exits.get(to).getValue();
+
+        if (depths == null) fillDepths(0);
+        if (rootExit != from && (!isPerfect || depths[first] == -1)) fillDepths(from);
+
+        if (depths[first] == -1 || depths[second] == -1) return -1;
+
+        while (depths[first] > depths[second]) first = getParent(first);
+        while (depths[second] > depths[first]) second = getParent(second);
+        while (first != second) {
+            first = getParent(first);
+            second = getParent(second);
+        }
+
+        return first;
+    }
+
+    public List<Pair<Integer, Integer>> getExits() {
+        return exits;
+    }
+
+    /**
+     * @return расстояние от клетки до ближайшего выхода или -1, если выхода из неё нет
+     */
+    public int getDistanceToExit(int y, int x) {
+        return distancesToExit[y * width + x];
+    }
+
+    /**
+     * @return номер ближайшего выхода в списке getExits() или -1, если выхода нет
+     */
+    public int getNearestExit(int y, int x) {
+        return nearestExits[y * width + x];
+    }
+
+    /**
+     * Возвращает длину кратчайшего маршрута между выходами
+     * @param from номер первого выхода
+     * @param to номер второго выхода
+     * @return кол-во шагов или -1, если выходы не связаны
+     */
+    public int getDistance(int from, int to) {
+        int parent = getCommonParent(from, to);
+
+        if (parent == -1) return -1;
+
+        int first = exits.get(from).getKey() * width + exits.get(from).getValue();
+        int second = exits.get(to).getKey() * width + exits.get(to).getValue();
+        return depths[first] + depths[second] - 2 * depths[parent];
+    }
+
+    /**
+     * Возвращает кратчайший маршрут между выходами
+     * @param from номер первого выхода
+     * @param to номер второго выхода
+     * @return список координат <y, x> всех клеток маршрута от from до to или пустой список
+     */
+    public ArrayList<Pair<Integer, Integer>> getRoute(int from, int to) {
+        ArrayList<Pair<Integer, Integer>> route = new ArrayList<>();
+        int parent = getCommonParent(from, to);
+
+        if (parent == -1) return route;
+
+        int first = exits.get(from).getKey() * width + exits.get(from).getValue();
+        int second = exits.get(to).getKey() * width + exits.get(to).getValue();
+
+        for (; first != parent; first = getParent(first)) {
+            route.add(new Pair<>(first / width, first % width));
+        }
+        route.add(new Pair<>(parent / width, parent % width));
+
+        //Вторая половина собирается от выхода к общему предку, поэтому добавляется в обратном порядке
+        ArrayList<Pair<Integer, Integer>> tail = new ArrayList<>();
+        for (; second != parent; second = getParent(second)) {
+            tail.add(new Pair<>(second / width, second % width));
+        }
+
+        for (int i = tail.size() - 1; i >= 0; i--) {
+            route.add(tail.get(i));
+        }
+
+        return route;
+    }
+
+    /**
+     * Заполняет матрицу кратчайших расстояний между всеми выходами
+     * @return матрица, где [i][j] - расстояние между i-м и j-м выходами или -1
+     */
+    public int[][] getDistancesBetweenExits() {
+        int[][] distances = new int[exits.size()][exits.size()];
+
+        for (int i = 0; i < exits.size(); i++) {
+            for (int j = i + 1; j < exits.size(); j++) {
+                distances[i][j] = getDistance(i, j);
+                distances[j][i] = distances[i][j];
+            }
+        }
+
+        return distances;
+    }
+}
@@ -27,6 +27,8 @@ public class Graph {
     Pair<Integer, Integer> secondEntry;
     int firstEntryId = -1;
     int secondEntryId = -1;
+    WallScanner scanner;
+    final static long ODD_COLUMNS = 0xAAAAAAAAAAAAAAAAL;
 
     private Graph() {
         this.vertexes = new ArrayList<>();
@@ -57,6 +59,7 @@ public class Graph {
      * @param maze переданный лабиринт
      */
     private void fillMatrixForReadyMaze(int[][] maze) {
+        scanner = new WallScanner(maze);
         findEntries(maze);
         countVertex(maze);
 
@@ -104,7 +107,7 @@ public class Graph {
     }
 
     /**
-     * Проверяет на наличие пути в колонке
+     * Проверяет на наличие пути в колонке по упакованному лабиринту (WallScanner)
      * @param maze - лабиринт
      * @param x - номер колонки в лабиринте
      * @param y1 - номер линии 1-го узла
@@ -112,19 +115,11 @@ public class Graph {
      * @return имеется путь или нет
      */
     private boolean isHavePathInColumn(int[][] maze, int x, int y1, int y2) {
-        int from = Math.min(y1, y2) + 1;
-        int to = Math.max(y1, y2);
-
-        while (from < to) {
-            if (maze[from][x] == 1) return false;
-            from++;
-        }
-
-        return true;
+        return scanner.isOpenInColumn(x, y1, y2);
     }
 
     /**
-     * Проверяет на наличие пути в линии
+     * Проверяет на наличие пути в линии по упакованному лабиринту, по 64 клетки за раз
      * @param maze - лабиринт
      * @param y - номер линии узлов
      * @param x1 - номер конки 1-го узла
@@ -132,15 +127,7 @@ public class Graph {
      * @return имеется путь или нет
      */
     private boolean isHavePathInLine(int[][] maze, int y, int x1, int x2) {
-        int from = Math.min(x1, x2) + 1;
-        int to = Math.max(x1, x2);
-
-        while (from < to) {
-            if (maze[y][from] == 1) return false;
-            from++;
-        }
-
-        return true;
+        return scanner.isOpenInLine(y, x1, x2);
     }
 
     /**
@@ -151,82 +138,100 @@ public class Graph {
      * если совпадают, то узел добавляется в список, а присваивается соответствующей переменной и
      * цикл дальше не идёт.
      *
-     * После с помощью нескольких проверок исключаются лишнии узлы
+     * Лишнии узлы - клетки на прямой дорожке - исключаются сразу для 64 клеток линии
+     * (WallScanner.getStraightMask), только линии со входами проверяются по одной клетке
      *
      * @param maze - лабиринт
      */
     private void countVertex(int[][] maze) {
+        int limit = maze[0].length % 2 == 0 ? maze[0].length - 1 : maze[0].length;
+
+        //Номера колонок упаковываются в Integer один раз, а не для каждого узла
+        Integer[] columns = new Integer[limit];
+        for (int j = 1; j < limit; j += 2) {
+            columns[j] = j;
+        }
+
         for (int i = 1; i < maze.length; i += 2) {
 
             if (maze.length % 2 == 0 && i == maze.length - 1) {
                 break;
             }
 
-            for (int j = 1; j < maze[i].length; j += 2) {
+            if (isEntryLine(i)) {
+                countVertexInEntryLine(maze, i);
+                continue;
+            }
 
-                if (maze[0].length % 2 == 0 && j == maze[0].length - 1) {
-                    break;
-                }
+            //Узлы - клетки в нечётных колонках, которые не лежат на прямой дорожке, по 64 клетки за раз
+            Integer line = i;
+            for (int word = 0; word < scanner.words; word++) {
+                long vertexMask = ~scanner.getStraightMask(i, word) & ODD_COLUMNS;
 
-                if (i == firstEntry.getKey()) {
-                    if (j == 1) {
-                        firstEntryId = vertexes.size();
-                        vertexes.add(new Pair<>(i, j));
-                        if (i != secondEntry.getKey()) continue;
-                    }
-                }
+                while (vertexMask != 0) {
+                    int j = (word << 6) + Long.numberOfTrailingZeros(vertexMask);
+                    if (j >= limit) break;
 
-                if (i + 1 == firstEntry.getKey()) {
-                    if (j == 1) {
-                        firstEntryId = vertexes.size();
-                        vertexes.add(new Pair<>(i + 1, j));
-                        if (i + 1 != secondEntry.getKey()) continue;
-                    }
+                    vertexes.add(new Pair<>(line, columns[j]));
+                    vertexMask &= vertexMask - 1;
                 }
+            }
+        }
+    }
 
-                if (i == secondEntry.getKey()) {
-                    if (j == secondEntry.getValue()) {
-                        secondEntryId = vertexes.size();
-                        vertexes.add(new Pair<>(i, j));
-                        continue;
-                    }
-                }
+    private boolean isEntryLine(int i) {
+        return i == firstEntry.getKey() || i + 1 == firstEntry.getKey()
+                || i == secondEntry.getKey() || i + 1 == secondEntry.getKey();
+    }
 
-                if (i + 1 == secondEntry.getKey()) {
-                    if (j == secondEntry.getValue()) {
-                        secondEntryId = vertexes.size();
-                        vertexes.add(new Pair<>(i + 1, j));
-                        continue;
-                    }
-                }
+    /**
+     * Добавляет узлы линии, рядом с которой находится вход, по одной клетке
+     *
+     * @param maze - лабиринт
+     * @param i - номер линии
+     */
+    private void countVertexInEntryLine(int[][] maze, int i) {
+        for (int j = 1; j < maze[i].length; j += 2) {
 
-                boolean left = false;
-                boolean right = false;
-                boolean top = false;
-                boolean bottom = false;
-                int score = 0;
+            if (maze[0].length % 2 == 0 && j == maze[0].length - 1) {
+                break;
+            }
 
-                if (maze[i - 1][j] == 0) {
-                    top = true;
-                    score++;
+            if (i == firstEntry.getKey()) {
+                if (j == 1) {
+                    firstEntryId = vertexes.size();
+                    vertexes.add(new Pair<>(i, j));
+                    if (i != secondEntry.getKey()) continue;
                 }
-                if (maze[i + 1][j] == 0) {
-                    bottom = true;
-                    score++;
+            }
+
+            if (i + 1 == firstEntry.getKey()) {
+                if (j == 1) {
+                    firstEntryId = vertexes.size();
+                    vertexes.add(new Pair<>(i + 1, j));
+                    if (i + 1 != secondEntry.getKey()) continue;
                 }
-                if (maze[i][j - 1] == 0) {
-                    left = true;
-                    score++;
+            }
+
+            if (i == secondEntry.getKey()) {
+                if (j == secondEntry.getValue()) {
+                    secondEntryId = vertexes.size();
+                    vertexes.add(new Pair<>(i, j));
+                    continue;
                 }
-                if (maze[i][j + 1] == 0) {
-                    right = true;
-                    score++;
+            }
+
+            if (i + 1 == secondEntry.getKey()) {
+                if (j == secondEntry.getValue()) {
+                    secondEntryId = vertexes.size();
+                    vertexes.add(new Pair<>(i + 1, j));
+                    continue;
                 }
+            }
 
-                if (score == 2 && ((right && left) || (top && bottom))) continue;
-                vertexes.add(new Pair<>(i, j));
+            if (scanner.isStraight(i, j)) continue;
+            vertexes.add(new Pair<>(i, j));
 
-            }
         }
     }
 
@@ -251,7 +256,6 @@ public class Graph {
         visitedVertexes.add(firstEntryId);
 
         while (!stack.empty()) {
-            System.out.println();
             Pair<Integer, Integer> vertex = stack.peek();
             int distance = vertex.getValue();
             int id = vertex.getKey();
@@ -9,7 +9,17 @@ public class Main {
     static boolean isExit = false;
     static Maze currentMaze;
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("--serve")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            new MazeService(port).start();
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--pipeline")) {
+            runPipeline(args);
+            return;
+        }
 
         while (!isExit) {
             printMenu();
@@ -17,8 +27,7 @@ public class Main {
 
             switch (commandId) {
                 case 1:
-                    generateMaze();
-                    currentMaze.printMaze();
+                    if (generateMaze()) currentMaze.printMaze();
                     break;
                 case 2:
                     loadMaze();
@@ -32,6 +41,12 @@ public class Main {
                 case 5:
                     currentMaze.findTheEscape();
                     break;
+                case 6:
+                    if (isMazeExist) printViewport(false);
+                    break;
+                case 7:
+                    if (isMazeExist) printViewport(true);
+                    break;
                 case 0:
                     isExit = true;
                     System.out.println("Bye!");
@@ -50,28 +65,90 @@ public class Main {
         if (isMazeExist) {
             System.out.println("3. Save the maze\n" +
                     "4. Display the maze\n" +
-                    "5. Find the escape");
+                    "5. Find the escape\n" +
+                    "6. Display a part of the maze\n" +
+                    "7. Display a part of the escape");
         }
 
         System.out.println("0. Exit");
     }
 
-    public static void generateMaze() {
+    public static boolean generateMaze() {
         System.out.println("Enter the size of a new maze");
         int size = scanner.nextInt();
+        MazePlanner plan = MazePlanner.planGeneration(size, size);
+
+        if (!plan.isPossible()) {
+            System.out.println(plan.getMessage());
+            return false;
+        }
+
         currentMaze = new Maze(size, size);
+        plan.apply(currentMaze);
         isMazeExist = true;
+        return true;
+    }
+
+    /**
+     * Массовое создание лабиринтов:
+     * --pipeline <кол-во> <размер> <папка> [потоков генерации] [потоков решения] [потоков сохранения]
+     */
+    public static void runPipeline(String[] args) throws InterruptedException {
+        int count;
+        int size;
+        int generators;
+        int solvers;
+        int writers;
+
+        try {
+            if (args.length < 4) throw new IllegalArgumentException();
+            count = Integer.parseInt(args[1]);
+            size = Integer.parseInt(args[2]);
+            generators = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+            solvers = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+            writers = args.length > 6 ? Integer.parseInt(args[6]) : 1;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Usage: --pipeline <count> <size> <directory> [generators] [solvers] [writers]");
+            return;
+        }
+
+        MazePipeline pipeline = new MazePipeline(new File(args[3]), generators, solvers, writers, 16);
+
+        try {
+            pipeline.run(count, size, size);
+            pipeline.print();
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    public static void printViewport(boolean withPath) {
+        System.out.println("Enter the top line, the left column, the height and the width of the part");
+        int top = scanner.nextInt();
+        int left = scanner.nextInt();
+        int height = scanner.nextInt();
+        int width = scanner.nextInt();
+        currentMaze.printViewport(top, left, height, width, withPath);
     }
 
     public static void loadMaze() {
         String path = scanner.next();
 
         try {
-            currentMaze = new Maze(new File(path));
+            Maze maze = new Maze(new File(path));
+            MazePlanner plan = MazePlanner.planSolving(maze.maze.length, maze.maze[0].length, false);
+
+            if (!plan.isPossible()) {
+                System.out.println(plan.getMessage());
+                return;
+            }
+
+            plan.apply(maze);
+            currentMaze = maze;
             isMazeExist = true;
         } catch (FileNotFoundException e) {
             System.out.printf("The file %s does not exist\n", path);
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             System.out.println("Cannot load the maze. It has an invalid format");
         }
     }
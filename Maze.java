@@ -10,17 +10,28 @@ import java.util.*;
 public class Maze {
     int[][] maze;
     boolean isSolved = false;
+    ArrayList<Pair<Integer, Integer>> escapePath;
     final static int WALL = 1;
     final static int PASS = 0;
     final static int PATH = -1;
+    final static int GRAPH_SOLVER = 0;
+    final static int DEAD_END_SOLVER = 1;
+    int solver = GRAPH_SOLVER;
+    int solverThreads = Runtime.getRuntime().availableProcessors();
 
     public Maze(File file) throws IOException {
-        Scanner reader = new Scanner(file);
-        ArrayList<String> lines = new ArrayList<>();
+        this(readLines(file));
+    }
 
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            lines.add(line);
+    /**
+     * Создаёт лабиринт из строк в формате saveMaze ('0' - проход, остальное - стена)
+     * Все строки должны быть одной длины, а в левой и правой колонке должно быть по входу
+     * @param lines строки лабиринта
+     * @throws IllegalArgumentException если лабиринт в неверном формате
+     */
+    public Maze(List<String> lines) {
+        if (!isValid(lines)) {
+            throw new IllegalArgumentException("Cannot load the maze. It has an invalid format");
         }
 
         maze = new int[lines.size()][lines.get(0).length()];
@@ -30,8 +41,41 @@ public class Maze {
                 maze[i][j] = lines.get(i).charAt(j) == '0' ? 0 : 1;
             }
         }
+    }
+
+    /**
+     * Проверяет, что строки образуют прямоугольник и что есть входы слева и справа
+     * (не в первой линии, как их ищет Graph)
+     */
+    private static boolean isValid(List<String> lines) {
+        if (lines.isEmpty() || lines.get(0).isEmpty()) return false;
+
+        int width = lines.get(0).length();
+        boolean hasLeftEntry = false;
+        boolean hasRightEntry = false;
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.length() != width) return false;
+
+            if (i > 0 && line.charAt(0) == '0') hasLeftEntry = true;
+            if (i > 0 && line.charAt(width - 1) == '0') hasRightEntry = true;
+        }
+
+        return hasLeftEntry && hasRightEntry;
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+
+        try (Scanner reader = new Scanner(file)) {
+            while (reader.hasNextLine()) {
+                String line = reader.nextLine();
+                if (!line.isEmpty()) lines.add(line);
+            }
+        }
 
-        reader.close();
+        return lines;
     }
 
     public Maze(int y, int x) {
@@ -69,20 +113,204 @@ public class Maze {
 
     public void saveMaze(PrintWriter writer) throws IOException {
         for (int[] array : maze) {
-            String str = Arrays.toString(array).replaceAll(", |\\[|\\]", "");
+            StringBuilder str = new StringBuilder();
+            for (int cell : array) {
+                str.append(cell == WALL ? WALL : PASS);
+            }
+            writer.printf("%s\n", str);
+        }
+    }
+
+    /**
+     * Сохраняет решённый лабиринт в том же виде, что и printSolvedMaze ('//' - клетки пути)
+     * saveMaze пишет путь как проход, поэтому решение сохраняется отдельно
+     * Лабиринт пишется по одной линии, чтобы не держать весь текст в памяти
+     */
+    public void saveSolvedMaze(PrintWriter writer) {
+        solve();
+
+        for (int[] array : maze) {
+            StringBuilder str = new StringBuilder(2 * array.length);
+            for (int cell : array) {
+                if (cell == PATH) {
+                    str.append("//");
+                } else if (cell == WALL) {
+                    str.append("\u2588\u2588");
+                } else {
+                    str.append("  ");
+                }
+            }
             writer.printf("%s\n", str);
         }
     }
 
+    /**
+     * Выводит только часть лабиринта (окно), см. renderViewport
+     * @param top - номер первой линии окна
+     * @param left - номер первой колонки окна
+     * @param height - высота окна
+     * @param width - длина окна
+     * @param withPath - отмечать ли путь между входами
+     */
+    public void printViewport(int top, int left, int height, int width, boolean withPath) {
+        System.out.print(renderViewport(top, left, height, width, withPath));
+    }
+
+    /**
+     * Рисует окно лабиринта, окно обрезается по границам лабиринта
+     * Если путь нужен, а лабиринт ещё не решён, то путь всё равно ищется для всего лабиринта:
+     * - DEAD_END_SOLVER решает лабиринт целиком и отмечает путь в самом лабиринте (solve)
+     * - GRAPH_SOLVER один раз находит узлы пути (findPath), а в окне отмечаются только отрезки,
+     *   которые его пересекают (getPathOverlay), сам лабиринт при этом не изменяется
+     * @return строки окна
+     */
+    public String renderViewport(int top, int left, int height, int width, boolean withPath) {
+        int fromY = Math.max(0, top);
+        int toY = Math.min(maze.length, top + height);
+        int fromX = Math.max(0, left);
+        int toX = Math.min(maze[0].length, left + width);
+        StringBuilder builder = new StringBuilder();
+
+        if (fromY >= toY || fromX >= toX) return "";
+
+        if (withPath && !isSolved && solver == DEAD_END_SOLVER) solve();
+
+        boolean[][] overlay = withPath && !isSolved ? getPathOverlay(fromY, fromX, toY, toX) : null;
+
+        for (int i = fromY; i < toY; i++) {
+            for (int j = fromX; j < toX; j++) {
+                boolean isPath = withPath && (maze[i][j] == PATH
+                        || overlay != null && overlay[i - fromY][j - fromX]);
+
+                if (isPath) {
+                    builder.append("//");
+                } else if (maze[i][j] == WALL) {
+                    builder.append("\u2588\u2588");
+                } else {
+                    builder.append("  ");
+                }
+            }
+            builder.append('\n');
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Отмечает клетки пути, попадающие в окно [fromY, toY) x [fromX, toX)
+     * Каждый отрезок пути между соседними узлами обрезается по границам окна,
+     * поэтому, когда путь уже найден, работа зависит от размера окна и кол-ва узлов пути,
+     * а не от размера лабиринта
+     * @return матрица размером с окно, true - клетка на пути
+     */
+    private boolean[][] getPathOverlay(int fromY, int fromX, int toY, int toX) {
+        findPath();
+        boolean[][] overlay = new boolean[toY - fromY][toX - fromX];
+
+        for (int i = 0; i < escapePath.size() - 1; i++) {
+            int y1 = escapePath.get(i).getKey();
+            int x1 = escapePath.get(i).getValue();
+            int y2 = escapePath.get(i + 1).getKey();
+            int x2 = escapePath.get(i + 1).getValue();
+
+            //Как и в findTheEscape: отрезок идёт по линии, если узлы в одной линии, иначе по колонке 1-го узла
+            if (y1 != y2) x2 = x1;
+
+            int minY = Math.max(Math.min(y1, y2), fromY);
+            int maxY = Math.min(Math.max(y1, y2), toY - 1);
+            int minX = Math.max(Math.min(x1, x2), fromX);
+            int maxX = Math.min(Math.max(x1, x2), toX - 1);
+
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    overlay[y - fromY][x - fromX] = true;
+                }
+            }
+        }
+
+        return overlay;
+    }
+
+    /**
+     * Ищет путь между входами, но не отмечает его в лабиринте
+     * Результат - список узлов escapePath от второго входа к первому,
+     * включая клетки самих входов в стенах
+     * Если матрица смежности Graph сейчас не помещается в память, путь ищется поиском в ширину
+     * (DistanceField), которому нужно только несколько int на клетку, тогда в escapePath все клетки пути
+     */
+    synchronized void findPath() {
+        if (escapePath != null) return;
+
+        if (!MazePlanner.isGraphFitting(maze.length, maze[0].length)) {
+            escapePath = findPathByDistances();
+            return;
+        }
+
+        Graph graph = Graph.getGraphForReadyMaze(this.maze);
+        Pair<Integer, Integer> firstEntry = graph.getFirstEntry();
+        Pair<Integer, Integer> secondEntry = graph.getSecondEntry();
+
+        ArrayList<Pair<Integer, Integer>> path = new ArrayList<>();
+        path.add(new Pair<>(secondEntry.getKey(), secondEntry.getValue() + 1));
+        path.addAll(graph.getPath());
+        path.add(new Pair<>(firstEntry.getKey(), firstEntry.getValue() - 1));
+        escapePath = path;
+    }
+
+    /**
+     * Входы выбираются так же, как в Graph.findEntries: последние свободные клетки левой и правой колонки
+     * @return клетки пути от второго входа к первому или пустой список, если пути нет
+     */
+    private ArrayList<Pair<Integer, Integer>> findPathByDistances() {
+        int width = maze[0].length;
+        int first = -1;
+        int second = -1;
+
+        for (int i = 1; i < maze.length; i++) {
+            if (maze[i][0] == PASS) first = i;
+            if (maze[i][width - 1] == PASS) second = i;
+        }
+
+        if (first == -1 || second == -1) return new ArrayList<>();
+
+        DistanceField field = new DistanceField(maze);
+        return field.getRoute(field.getExit(second, width - 1), field.getExit(first, 0));
+    }
+
     public void findTheEscape() {
+        solve();
+        this.printSolvedMaze();
+    }
+
+    /**
+     * Выбирает способ поиска пути:
+     * GRAPH_SOLVER - через граф узлов (Graph), нужна матрица смежности узлов
+     * DEAD_END_SOLVER - заливкой тупиков прямо в лабиринте (DeadEndFiller), только для идеальных лабиринтов
+     * @param solver способ поиска
+     * @param threads кол-во потоков для DEAD_END_SOLVER
+     */
+    public void setSolver(int solver, int threads) {
+        this.solver = solver;
+        this.solverThreads = threads;
+    }
+
+    /**
+     * Отмечает путь между входами в лабиринте, ничего не выводя
+     */
+    synchronized void solve() {
+        if (!isSolved && solver == DEAD_END_SOLVER) {
+            DeadEndFiller.solve(maze, solverThreads);
+            isSolved = true;
+        }
+
         if (!isSolved) {
-            Graph graph = Graph.getGraphForReadyMaze(this.maze);
-            ArrayList<Pair<Integer, Integer>> path = graph.getPath();
+            findPath();
+            ArrayList<Pair<Integer, Integer>> path = escapePath;
 
             for (int i = 0; i < path.size() - 1; i++) {
                 int min;
                 int max;
-                if (path.get(i).getKey() == path.get(i + 1).getKey()) {
+                if (path.get(i).getKey().equals(path.get(i + 1).getKey())) {
                     min = Math.min(path.get(i).getValue(), path.get(i + 1).getValue());
                     max = Math.max(path.get(i).getValue(), path.get(i + 1).getValue());
                     for (int j = min; j <= max; j++) {
@@ -97,11 +325,7 @@ public class Maze {
                 }
             }
 
-            Pair<Integer, Integer> firstEntry = graph.getFirstEntry();
-            Pair<Integer, Integer> secondEntry = graph.getSecondEntry();
-            maze[firstEntry.getKey()][firstEntry.getValue() - 1] = PATH;
-            maze[secondEntry.getKey()][secondEntry.getValue() + 1] = PATH;
+            isSolved = true;
         }
-        this.printSolvedMaze();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,249 @@
+package maze;
+
+import java.util.Arrays;
+
+/**
+ * Считает характеристики лабиринта:
+ * - кол-во тупиков (свободная клетка не на границе с одним свободным соседом)
+ * - кол-во развилок (три или четыре свободных соседа)
+ * - кол-во выходов (свободные клетки на границе)
+ * - распределение длин коридоров (кол-во шагов между соседними развилками, тупиками или выходами)
+ * - самый длинный путь в лабиринте (диаметр дерева)
+ *
+ * Тупики, развилки и выходы считаются масками WallScanner сразу для 64 клеток линии,
+ * коридоры и путь - за два прохода: поиск в ширину по каждой связной части лабиринта и обратный проход
+ * по порядку обхода, где каждая клетка передаёт своему родителю длину коридора и высоту поддерева
+ * Для лабиринтов с циклами длины коридоров и самый длинный путь считаются по дереву поиска
+ *
+ * Объекты для клеток не создаются, все массивы (кроме упакованной копии лабиринта) хранятся в объекте
+ * и переиспользуются,
+ * поэтому один объект можно применять к любому кол-ву лабиринтов (но не из нескольких потоков сразу)
+ */
+public class MazeAnalytics {
+    //Направления на родителя в младших битах states, старшие биты - кол-во детей в дереве поиска
+    final static int UP = 1;
+    final static int DOWN = 2;
+    final static int LEFT = 3;
+    final static int RIGHT = 4;
+    final static int ROOT = 5;
+    final static int DIRECTION_MASK = 7;
+    final static int CHILD = 8;
+
+    int[] order = new int[0];
+    byte[] states = new byte[0];
+    int[] heights = new int[0];
+    int[] runs = new int[0];
+
+    int deadEnds;
+    int junctions;
+    int exits;
+    int corridors;
+    long corridorsLength;
+    int[] corridorLengths = new int[16];
+    int longestPath;
+
+    public MazeAnalytics analyze(int[][] maze) {
+        int height = maze.length;
+        int width = maze[0].length;
+        int size = height * width;
+
+        if (order.length < size) {
+            order = new int[size];
+            states = new byte[size];
+            heights = new int[size];
+            runs = new int[size];
+        } else {
+            Arrays.fill(states, 0, size, (byte) 0);
+        }
+
+        deadEnds = 0;
+        junctions = 0;
+        exits = 0;
+        corridors = 0;
+        corridorsLength = 0;
+        longestPath = 0;
+        Arrays.fill(corridorLengths, 0);
+
+        countCells(maze);
+
+        int tail = 0;
+        for (int start = 0; start < size; start++) {
+            if (states[start] != 0 || maze[start / width][start % width] == Maze.WALL) continue;
+
+            int begin = tail;
+            states[start] = ROOT;
+            heights[start] = 0;
+            runs[start] = 0;
+            order[tail++] = start;
+
+            for (int head = begin; head < tail; head++) {
+                tail = visitNeighbours(maze, order[head], tail);
+            }
+
+            for (int i = tail - 1; i > begin; i--) {
+                passToParent(order[i], width);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Считает тупики и развилки внутри лабиринта и выходы на его границе по 64 клетки за раз
+     */
+    private void countCells(int[][] maze) {
+        WallScanner scanner = new WallScanner(maze);
+        int height = maze.length;
+        int width = maze[0].length;
+
+        for (int y = 0; y < height; y++) {
+            for (int word = 0; word < scanner.words; word++) {
+                long border = y == 0 || y == height - 1 ? -1L : getBorderMask(word, width);
+
+                exits += Long.bitCount(scanner.getOpenMask(y, word) & border);
+                deadEnds += Long.bitCount(scanner.getDeadEndMask(y, word) & ~border);
+                junctions += Long.bitCount(scanner.getJunctionMask(y, word) & ~border);
+            }
+        }
+    }
+
+    /**
+     * @return маска клеток слова, которые лежат в первой или последней колонке
+     */
+    private static long getBorderMask(int word, int width) {
+        long mask = word == 0 ? 1L : 0L;
+        if ((width - 1) >>> 6 == word) mask |= 1L << (width - 1);
+        return mask;
+    }
+
+    /**
+     * Добавляет непосещённых соседей клетки в очередь
+     * @return новый конец очереди
+     */
+    private int visitNeighbours(int[][] maze, int cell, int tail) {
+        int height = maze.length;
+        int width = maze[0].length;
+        int y = cell / width;
+        int x = cell % width;
+
+        if (y > 0 && maze[y - 1][x] != Maze.WALL) {
+            tail = visit(cell, cell - width, DOWN, tail);
+        }
+        if (y < height - 1 && maze[y + 1][x] != Maze.WALL) {
+            tail = visit(cell, cell + width, UP, tail);
+        }
+        if (x > 0 && maze[y][x - 1] != Maze.WALL) {
+            tail = visit(cell, cell - 1, RIGHT, tail);
+        }
+        if (x < width - 1 && maze[y][x + 1] != Maze.WALL) {
+            tail = visit(cell, cell + 1, LEFT, tail);
+        }
+
+        return tail;
+    }
+
+    private int visit(int cell, int neighbour, int direction, int tail) {
+        if (states[neighbour] != 0) return tail;
+
+        states[neighbour] = (byte) direction;
+        states[cell] += CHILD;
+        heights[neighbour] = 0;
+        runs[neighbour] = 0;
+        order[tail] = neighbour;
+        return tail + 1;
+    }
+
+    /**
+     * Передаёт родителю клетки высоту её поддерева и длину коридора, который идёт от неё вниз
+     * Корень с двумя детьми лежит посреди коридора, поэтому два его коридора складываются в один
+     */
+    private void passToParent(int cell, int width) {
+        int parent = getParent(cell, width);
+        int length = (isNode(cell) ? 0 : runs[cell]) + 1;
+
+        longestPath = Math.max(longestPath, heights[parent] + heights[cell] + 1);
+        heights[parent] = Math.max(heights[parent], heights[cell] + 1);
+
+        if ((states[parent] & DIRECTION_MASK) == ROOT && states[parent] >> 3 == 2) {
+            if (runs[parent] == 0) {
+                runs[parent] = length;
+            } else {
+                addCorridor(runs[parent] + length);
+            }
+        } else if (isNode(parent)) {
+            addCorridor(length);
+        } else {
+            runs[parent] = length;
+        }
+    }
+
+    /**
+     * Узел - клетка, в которой коридор заканчивается: у неё не один ребёнок в дереве поиска
+     * (у корня - не два)
+     */
+    private boolean isNode(int cell) {
+        int children = states[cell] >> 3;
+        return (states[cell] & DIRECTION_MASK) == ROOT ? children != 2 : children != 1;
+    }
+
+    private int getParent(int cell, int width) {
+        switch (states[cell] & DIRECTION_MASK) {
+            case UP:
+                return cell - width;
+            case DOWN:
+                return cell + width;
+            case LEFT:
+                return cell - 1;
+            default:
+                return cell + 1;
+        }
+    }
+
+    private void addCorridor(int length) {
+        if (length >= corridorLengths.length) {
+            corridorLengths = Arrays.copyOf(corridorLengths, Math.max(length + 1, corridorLengths.length * 2));
+        }
+
+        corridorLengths[length]++;
+        corridors++;
+        corridorsLength += length;
+    }
+
+    public void print() {
+        System.out.printf("Dead ends: %d\nJunctions: %d\nExits: %d\nCorridors: %d\n" +
+                        "Average corridor length: %.2f\nLongest path: %d\n",
+                deadEnds, junctions, exits, corridors, getAverageCorridorLength(), longestPath);
+    }
+
+    public int getDeadEnds() {
+        return deadEnds;
+    }
+
+    public int getJunctions() {
+        return junctions;
+    }
+
+    public int getExits() {
+        return exits;
+    }
+
+    public int getCorridors() {
+        return corridors;
+    }
+
+    /**
+     * @param length длина коридора в шагах
+     * @return кол-во коридоров такой длины
+     */
+    public int getCorridors(int length) {
+        return length < corridorLengths.length ? corridorLengths[length] : 0;
+    }
+
+    public double getAverageCorridorLength() {
+        return corridors == 0 ? 0 : (double) corridorsLength / corridors;
+    }
+
+    public int getLongestPath() {
+        return longestPath;
+    }
+}
@@ -0,0 +1,244 @@
+package maze;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Конвейер для массового создания лабиринтов: генерация -> решение -> сохранение
+ *
+ * У каждого этапа своё кол-во потоков, этапы связаны очередями ограниченного размера.
+ * Пока один лабиринт сохраняется на диск, следующие уже решаются и генерируются,
+ * а если какой-то этап не успевает, очередь перед ним заполняется и предыдущий этап ждёт
+ * (put блокируется), поэтому в памяти никогда не бывает больше лабиринтов, чем помещается в очереди
+ *
+ * Для каждого этапа считается время, которое его потоки были заняты работой, а не ожиданием очереди,
+ * по нему видно, какой этап самый медленный
+ */
+public class MazePipeline {
+    final static Item END = new Item(-1, null);
+
+    File directory;
+    int queueSize;
+    Stage generation;
+    Stage solving;
+    Stage writing;
+
+    public MazePipeline(File directory, int generators, int solvers, int writers, int queueSize) {
+        this.directory = directory;
+        this.queueSize = queueSize;
+        this.generation = new Stage("generate", generators);
+        this.solving = new Stage("solve", solvers);
+        this.writing = new Stage("write", writers);
+    }
+
+    /**
+     * Создаёт, решает и сохраняет в папку count лабиринтов заданного размера:
+     * maze-N.txt - лабиринт в формате saveMaze, maze-N.solved.txt - он же с отмеченным путём
+     * Память планируется сразу под все лабиринты, которые могут быть в работе и в двух очередях
+     * (у потоков сохранения лабиринт тоже в памяти)
+     * Возвращается, когда все этапы закончили работу
+     */
+    public void run(int count, int height, int width) throws InterruptedException {
+        MazePlanner plan = MazePlanner.planPipeline(height, width, generation.threads,
+                2 * queueSize + writing.threads, solving.threads);
+
+        if (!plan.isPossible()) {
+            throw new IllegalArgumentException(plan.getMessage());
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException(String.format("Cannot create the directory %s", directory));
+        }
+
+        generation.reset();
+        solving.reset();
+        writing.reset();
+
+        int solverThreads = Math.max(1, plan.getThreads() / solving.threads);
+        BlockingQueue<Item> generated = new ArrayBlockingQueue<>(queueSize);
+        BlockingQueue<Item> solved = new ArrayBlockingQueue<>(queueSize);
+        AtomicInteger nextId = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(generation.threads + solving.threads + writing.threads);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < generation.threads; i++) {
+            executor.execute(() -> generation.work(null, generated, solving.threads, item -> {
+                int id = nextId.getAndIncrement();
+                if (id >= count) return END;
+
+                Maze maze = new Maze(height, width);
+                maze.setSolver(plan.getSolver(), solverThreads);
+                return new Item(id, maze);
+            }));
+        }
+
+        for (int i = 0; i < solving.threads; i++) {
+            executor.execute(() -> solving.work(generated, solved, writing.threads, item -> {
+                item.maze.solve();
+                return item;
+            }));
+        }
+
+        for (int i = 0; i < writing.threads; i++) {
+            executor.execute(() -> writing.work(solved, null, 0, item -> {
+                File file = new File(directory, String.format("maze-%d.txt", item.id));
+                try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+                    item.maze.saveMaze(writer);
+                    checkError(writer, file);
+                }
+
+                File solution = new File(directory, String.format("maze-%d.solved.txt", item.id));
+                try (PrintWriter writer = new PrintWriter(new FileWriter(solution, StandardCharsets.UTF_8))) {
+                    item.maze.saveSolvedMaze(writer);
+                    checkError(writer, solution);
+                }
+                return item;
+            }));
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        long elapsed = System.nanoTime() - start;
+        generation.elapsedNanos = elapsed;
+        solving.elapsedNanos = elapsed;
+        writing.elapsedNanos = elapsed;
+    }
+
+    /**
+     * PrintWriter не бросает исключений при ошибках записи, поэтому они проверяются явно,
+     * чтобы недописанный файл попал в failed этапа
+     */
+    private static void checkError(PrintWriter writer, File file) throws IOException {
+        if (writer.checkError()) {
+            throw new IOException(String.format("Cannot write the file %s", file));
+        }
+    }
+
+    public void print() {
+        for (Stage stage : new Stage[]{generation, solving, writing}) {
+            System.out.printf("%s: %d thread(s), %d maze(s), %d failed, busy %.0f%%\n",
+                    stage.name, stage.threads, stage.processed.get(), stage.failed.get(), stage.getLoad() * 100);
+        }
+    }
+
+    public Stage getGeneration() {
+        return generation;
+    }
+
+    public Stage getSolving() {
+        return solving;
+    }
+
+    public Stage getWriting() {
+        return writing;
+    }
+
+    /**
+     * Этап конвейера и его статистика
+     */
+    public static class Stage {
+        String name;
+        int threads;
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong busyNanos = new AtomicLong();
+        AtomicInteger running;          //потоки этапа, которые ещё не закончили работу
+        long elapsedNanos;
+
+        Stage(String name, int threads) {
+            this.name = name;
+            this.threads = Math.max(1, threads);
+            this.running = new AtomicInteger(this.threads);
+        }
+
+        void reset() {
+            processed.set(0);
+            failed.set(0);
+            busyNanos.set(0);
+            running.set(threads);
+            elapsedNanos = 0;
+        }
+
+        /**
+         * Цикл одного потока этапа: берёт элемент из входной очереди (если она есть), обрабатывает его
+         * и кладёт в выходную. Заканчивается, когда получает END. Последний закончивший поток этапа
+         * кладёт по END для каждого потока следующего этапа
+         */
+        void work(BlockingQueue<Item> input, BlockingQueue<Item> output, int nextThreads, Task task) {
+            try {
+                while (true) {
+                    Item item = input == null ? null : input.take();
+                    if (item == END) break;
+
+                    long start = System.nanoTime();
+                    Item result;
+                    try {
+                        result = task.process(item);
+                    } catch (Exception | OutOfMemoryError e) {
+                        failed.incrementAndGet();
+                        System.out.printf("Stage %s failed: %s\n", name, e);
+                        continue;
+                    } finally {
+                        busyNanos.addAndGet(System.nanoTime() - start);
+                    }
+
+                    if (result == END) break;
+                    processed.incrementAndGet();
+                    if (output != null) output.put(result);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (running.decrementAndGet() == 0 && output != null) {
+                    for (int i = 0; i < nextThreads; i++) {
+                        putEnd(output);
+                    }
+                }
+            }
+        }
+
+        private static void putEnd(BlockingQueue<Item> output) {
+            try {
+                output.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * @return доля времени, которую потоки этапа были заняты работой, от 0 до 1
+         */
+        public double getLoad() {
+            return elapsedNanos == 0 ? 0 : (double) busyNanos.get() / elapsedNanos / threads;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getProcessed() {
+            return processed.get();
+        }
+    }
+
+    interface Task {
+        Item process(Item item) throws IOException;
+    }
+
+    static class Item {
+        int id;
+        Maze maze;
+
+        Item(int id, Maze maze) {
+            this.id = id;
+            this.maze = maze;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package maze;
+
+import java.util.logging.Logger;
+
+/**
+ * Оценивает память и время для лабиринта заданного размера до того, как он будет создан или решён,
+ * и выбирает самый быстрый способ, который помещается в доступную память
+ *
+ * Узел - каждая вторая клетка лабиринта, их V = (y / 2) * (x / 2)
+ * - хранение: int[][] лабиринт, 4 байта на клетку
+ * - генератор (MazeGenerator): матрица смежности V x V, время ~ V^2
+ * - GRAPH_SOLVER: матрица смежности только для узлов развилок и тупиков (~0.85 V), время ~ V^3
+ * - DEAD_END_SOLVER: дополнительной памяти не нужно, время ~ кол-ву клеток / кол-во потоков,
+ *   но подходит только для идеальных лабиринтов
+ *
+ * Коэффициенты времени получены замерами на небольших лабиринтах и дают только порядок величины
+ * Оценки памяти не переполняются: если результат не помещается в long, он считается равным Long.MAX_VALUE,
+ * т.е. заведомо не помещается в память. Матрица с кол-вом узлов больше, чем вмещает int, не создаётся вовсе
+ *
+ * В конвейере (MazePipeline) лабиринты создаются и решаются одновременно, тогда память нужна
+ * под все лабиринты в работе и в очередях, под матрицу каждого генератора и под матрицу каждого решателя
+ */
+public class MazePlanner {
+    final static Logger LOGGER = Logger.getLogger(MazePlanner.class.getName());
+
+    final static double GENERATOR_NANOS_PER_VERTEX_PAIR = 20;
+    final static double GRAPH_SOLVER_NANOS_PER_VERTEX_TRIPLE = 0.5;
+    final static double DEAD_END_SOLVER_NANOS_PER_CELL = 20;
+    final static double GRAPH_VERTEX_RATIO = 0.85;
+    final static long BYTES_PER_VERTEX = 100;
+    final static double HEAP_USAGE_LIMIT = 0.8;
+
+    int height;
+    int width;
+    boolean isPossible;
+    String message;
+    int solver;
+    int threads;
+    long estimatedBytes;
+    long estimatedMillis;
+    boolean isConcurrent;
+    int mazes = 1;          //лабиринтов в памяти одновременно
+    int generators = 1;     //генераторов, работающих одновременно
+    int solvers = 1;        //решателей, работающих одновременно
+
+    private MazePlanner(int height, int width) {
+        this.height = height;
+        this.width = width;
+    }
+
+    /**
+     * Планирует создание лабиринта и его последующее решение
+     * Сгенерированный лабиринт всегда идеальный, поэтому рассматриваются оба способа решения
+     */
+    public static MazePlanner planGeneration(int height, int width) {
+        MazePlanner plan = new MazePlanner(height, width);
+        long vertexes = (long) (height / 2) * (width / 2);
+        plan.choose(getGridBytes(height, width), getMatrixBytes(vertexes),
+                GENERATOR_NANOS_PER_VERTEX_PAIR * vertexes * vertexes, true);
+        return plan;
+    }
+
+    /**
+     * Планирует конвейер, в котором лабиринты генерируются и решаются одновременно
+     * @param generators кол-во потоков генерации
+     * @param queued сколько ещё лабиринтов могут быть в памяти (в очередях между этапами и при сохранении)
+     * @param solvers кол-во потоков решения
+     */
+    public static MazePlanner planPipeline(int height, int width, int generators, int queued, int solvers) {
+        MazePlanner plan = new MazePlanner(height, width);
+        long vertexes = (long) (height / 2) * (width / 2);
+        plan.isConcurrent = true;
+        plan.mazes = generators + queued + solvers;
+        plan.generators = generators;
+        plan.solvers = solvers;
+        plan.choose(getGridBytes(height, width), getMatrixBytes(vertexes),
+                GENERATOR_NANOS_PER_VERTEX_PAIR * vertexes * vertexes, true);
+        return plan;
+    }
+
+    /**
+     * Планирует решение уже созданного или загруженного лабиринта
+     * Сам лабиринт уже в памяти и вычтен из доступной, поэтому учитывается только память решателя
+     * @param isPerfect известно ли, что в лабиринте нет циклов
+     */
+    public static MazePlanner planSolving(int height, int width, boolean isPerfect) {
+        MazePlanner plan = new MazePlanner(height, width);
+        plan.choose(0, 0, 0, isPerfect);
+        return plan;
+    }
+
+    /**
+     * Проверяет, поместится ли сейчас в память граф узлов (Graph) для уже созданного лабиринта
+     * В отличие от planSolving ничего не выбирает и не пишет в лог
+     */
+    public static boolean isGraphFitting(int height, int width) {
+        long vertexes = (long) (GRAPH_VERTEX_RATIO * (height / 2) * (width / 2));
+        return getMatrixBytes(vertexes) <= getAvailableBytes();
+    }
+
+    /**
+     * Перебирает способы решения, отбрасывает те, что не помещаются в память, и выбирает самый быстрый
+     * Для одного лабиринта генерация и решение идут друг за другом, поэтому память нужна под лабиринт
+     * и больший из двух этапов (см. getTotalBytes)
+     * Если лабиринт не обязательно идеальный, то DEAD_END_SOLVER выбирается, только если граф не помещается
+     */
+    private void choose(long gridBytes, long generatorBytes, double generatorNanos, boolean isPerfect) {
+        long vertexes = (long) (GRAPH_VERTEX_RATIO * (height / 2) * (width / 2));
+        int cores = Runtime.getRuntime().availableProcessors();
+        long available = getAvailableBytes();
+
+        long graphBytes = getTotalBytes(gridBytes, generatorBytes, getMatrixBytes(vertexes));
+        double graphNanos = generatorNanos + GRAPH_SOLVER_NANOS_PER_VERTEX_TRIPLE * vertexes * vertexes * vertexes;
+        long deadEndBytes = getTotalBytes(gridBytes, generatorBytes, 0);
+        double deadEndNanos = generatorNanos + DEAD_END_SOLVER_NANOS_PER_CELL * height * width / cores;
+
+        boolean isGraphPossible = graphBytes <= available;
+        boolean isDeadEndPossible = deadEndBytes <= available && (isPerfect || !isGraphPossible);
+
+        if (isDeadEndPossible && (!isGraphPossible || deadEndNanos < graphNanos)) {
+            set(Maze.DEAD_END_SOLVER, cores, deadEndBytes, deadEndNanos);
+            if (!isPerfect) {
+                LOGGER.warning(String.format("The graph for a %dx%d maze does not fit into memory, " +
+                        "dead end filling is used and the maze is assumed to have no loops", height, width));
+            }
+        } else if (isGraphPossible) {
+            set(Maze.GRAPH_SOLVER, 1, graphBytes, graphNanos);
+        } else {
+            isPossible = false;
+            estimatedBytes = Math.min(graphBytes, deadEndBytes);
+            message = estimatedBytes == Long.MAX_VALUE
+                    ? String.format("%s is too big", describe())
+                    : String.format("%s needs about %d MB, but only %d MB is available",
+                            describe(), toMegabytes(estimatedBytes), toMegabytes(available));
+            LOGGER.info(message);
+            return;
+        }
+
+        isPossible = true;
+        message = String.format("%s: %s with %d thread(s), about %d MB of %d MB, about %d ms",
+                describe(), solver == Maze.GRAPH_SOLVER ? "graph solver" : "dead end filling",
+                threads, toMegabytes(estimatedBytes), toMegabytes(available), estimatedMillis);
+        LOGGER.info(message);
+    }
+
+    /**
+     * @param solverBytes память решателя сверх самого лабиринта
+     * @return память под все лабиринты, которые могут быть в памяти одновременно
+     */
+    private long getTotalBytes(long gridBytes, long generatorBytes, long solverBytes) {
+        if (!isConcurrent) return add(gridBytes, Math.max(generatorBytes, solverBytes));
+        return add(add(multiply(mazes, gridBytes), multiply(generators, generatorBytes)),
+                multiply(solvers, solverBytes));
+    }
+
+    private String describe() {
+        if (!isConcurrent) return String.format("The maze of size %dx%d", height, width);
+        return String.format("%d mazes of size %dx%d at once", mazes, height, width);
+    }
+
+    private void set(int solver, int threads, long bytes, double nanos) {
+        this.solver = solver;
+        this.threads = threads;
+        this.estimatedBytes = bytes;
+        this.estimatedMillis = (long) (nanos / 1_000_000);
+    }
+
+    /**
+     * Назначает лабиринту выбранный способ решения
+     */
+    public void apply(Maze maze) {
+        if (isPossible) maze.setSolver(solver, threads);
+    }
+
+    private static long getGridBytes(int height, int width) {
+        return multiply(height, 16 + 4L * width);
+    }
+
+    /**
+     * Матрица смежности int[V][V] (Graph, MazeGenerator) индексируется int, поэтому больше узлов не бывает
+     */
+    private static long getMatrixBytes(long vertexes) {
+        if (vertexes > Integer.MAX_VALUE) return Long.MAX_VALUE;
+        return add(multiply(vertexes, 16 + 4 * vertexes), multiply(vertexes, BYTES_PER_VERTEX));
+    }
+
+    private static long multiply(long a, long b) {
+        try {
+            return Math.multiplyExact(a, b);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static long add(long a, long b) {
+        try {
+            return Math.addExact(a, b);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static long getAvailableBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        return (long) ((runtime.maxMemory() - used) * HEAP_USAGE_LIMIT);
+    }
+
+    private static long toMegabytes(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+
+    public boolean isPossible() {
+        return isPossible;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public int getSolver() {
+        return solver;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public long getEstimatedMillis() {
+        return estimatedMillis;
+    }
+}
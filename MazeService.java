@@ -0,0 +1,263 @@
+package maze;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Локальный HTTP сервис для работы с лабиринтами без меню из Main
+ *
+ * Запросы:
+ * /generate?size=N или /generate?height=Y&width=X - создаёт лабиринт, возвращает его id
+ * /load (тело запроса - лабиринт в формате saveMaze) - загружает лабиринт, возвращает его id
+ * /solve?id=ID - находит путь и возвращает решённый лабиринт
+ * /render?id=ID&top=&left=&height=&width=&path=true - возвращает часть лабиринта (см. Maze.renderViewport)
+ * /save?id=ID - возвращает лабиринт в формате saveMaze
+ *
+ * Последние CACHE_SIZE лабиринтов хранятся в кэше, самые давно использованные вытесняются
+ * Одновременные запросы /solve для одного лабиринта ждут одно и то же решение, а не считают его заново
+ * (так же объединяются поиски пути для /render, но отдельно от /solve: они не решают лабиринт)
+ * Обработчики запускаются на виртуальных потоках, если JVM их поддерживает, иначе на обычном пуле потоков
+ */
+public class MazeService {
+    final static int CACHE_SIZE = 64;
+
+    HttpServer server;
+    ExecutorService executor;
+    AtomicInteger lastId = new AtomicInteger();
+    Map<String, Maze> cache;
+    ConcurrentHashMap<String, CompletableFuture<Maze>> solving = new ConcurrentHashMap<>();
+
+    public MazeService(int port) throws IOException {
+        cache = Collections.synchronizedMap(new LinkedHashMap<String, Maze>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Maze> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        });
+
+        executor = newExecutor();
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(executor);
+        server.createContext("/generate", handler(this::generate));
+        server.createContext("/load", handler(this::load));
+        server.createContext("/solve", handler(this::solve));
+        server.createContext("/render", handler(this::render));
+        server.createContext("/save", handler(this::save));
+    }
+
+    public void start() {
+        server.start();
+        System.out.printf("Maze service is listening on port %d\n", server.getAddress().getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private String generate(HttpExchange exchange, Map<String, String> params) {
+        int height = getInt(params, "height", getInt(params, "size", -1));
+        int width = getInt(params, "width", getInt(params, "size", -1));
+
+        if (height < 3 || width < 3) {
+            throw new IllegalArgumentException("The size of a maze should be at least 3");
+        }
+
+        MazePlanner plan = MazePlanner.planGeneration(height, width);
+
+        if (!plan.isPossible()) {
+            throw new IllegalArgumentException(plan.getMessage());
+        }
+
+        Maze maze = new Maze(height, width);
+        plan.apply(maze);
+        return add(maze);
+    }
+
+    private String load(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        ArrayList<String> lines = new ArrayList<>();
+
+        for (String line : body.split("\\r?\\n")) {
+            if (!line.isEmpty()) lines.add(line);
+        }
+
+        Maze maze = new Maze(lines);
+        MazePlanner plan = MazePlanner.planSolving(maze.maze.length, maze.maze[0].length, false);
+
+        if (!plan.isPossible()) {
+            throw new IllegalArgumentException(plan.getMessage());
+        }
+
+        plan.apply(maze);
+        return add(maze);
+    }
+
+    private String solve(HttpExchange exchange, Map<String, String> params) {
+        Maze maze = getMaze(params);
+        return solve(params.get("id"), maze).renderViewport(0, 0, maze.maze.length, maze.maze[0].length, true);
+    }
+
+    private String render(HttpExchange exchange, Map<String, String> params) {
+        Maze maze = getMaze(params);
+        int top = getInt(params, "top", 0);
+        int left = getInt(params, "left", 0);
+        int height = getInt(params, "height", maze.maze.length);
+        int width = getInt(params, "width", maze.maze[0].length);
+        boolean withPath = Boolean.parseBoolean(params.get("path"));
+
+        if (withPath && !maze.isSolved) {
+            //Путь для окна считается лениво, но сам поиск пути объединяется с остальными запросами
+            if (maze.solver == Maze.GRAPH_SOLVER) {
+                await(batch(params.get("id") + "/path", maze, maze::findPath));
+            } else {
+                await(batch(params.get("id") + "/solve", maze, maze::solve));
+            }
+        }
+
+        return maze.renderViewport(top, left, height, width, withPath);
+    }
+
+    private String save(HttpExchange exchange, Map<String, String> params) throws IOException {
+        StringWriter writer = new StringWriter();
+        getMaze(params).saveMaze(new PrintWriter(writer));
+        return writer.toString();
+    }
+
+    /**
+     * Решает лабиринт, если одновременно пришло несколько запросов для одного лабиринта,
+     * то все они ждут одно решение
+     */
+    Maze solve(String id, Maze maze) {
+        if (maze.isSolved) return maze;
+        return await(batch(id + "/solve", maze, maze::solve));
+    }
+
+    /**
+     * @param key id лабиринта и задача, одинаковые задачи для одного лабиринта выполняются один раз
+     */
+    private CompletableFuture<Maze> batch(String key, Maze maze, Runnable task) {
+        CompletableFuture<Maze> future = solving.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> {
+            task.run();
+            return maze;
+        }, executor));
+
+        future.whenComplete((result, e) -> solving.remove(key, future));
+        return future;
+    }
+
+    private static Maze await(CompletableFuture<Maze> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+    private String add(Maze maze) {
+        String id = String.valueOf(lastId.incrementAndGet());
+        cache.put(id, maze);
+        return id + "\n";
+    }
+
+    private Maze getMaze(Map<String, String> params) {
+        Maze maze = cache.get(params.get("id"));
+
+        if (maze == null) {
+            throw new NoSuchElementException(String.format("The maze %s does not exist", params.get("id")));
+        }
+
+        return maze;
+    }
+
+    private static int getInt(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("The parameter %s should be a number", name));
+        }
+    }
+
+    private static Map<String, String> getParams(HttpExchange exchange) {
+        HashMap<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+
+        if (query == null) return params;
+
+        for (String pair : query.split("&")) {
+            int index = pair.indexOf('=');
+            if (index == -1) continue;
+            params.put(URLDecoder.decode(pair.substring(0, index), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(index + 1), StandardCharsets.UTF_8));
+        }
+
+        return params;
+    }
+
+    /**
+     * Оборачивает обработчик: разбирает параметры, отправляет ответ и превращает исключения в коды ошибок
+     */
+    private static HttpHandler handler(Action action) {
+        return exchange -> {
+            int code = 200;
+            String response;
+
+            try {
+                response = action.handle(exchange, getParams(exchange));
+            } catch (IllegalArgumentException e) {
+                code = 400;
+                response = e.getMessage() + "\n";
+            } catch (NoSuchElementException e) {
+                code = 404;
+                response = e.getMessage() + "\n";
+            } catch (OutOfMemoryError e) {
+                code = 503;
+                response = "The maze is too big\n";
+            } catch (Exception e) {
+                code = 500;
+                response = "Something goes wrong! CODE - RED!!!\n";
+            }
+
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(code, bytes.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(bytes);
+            }
+        };
+    }
+
+    /**
+     * Виртуальные потоки появились только в Java 21, а проект собирается под Java 11,
+     * поэтому они ищутся через рефлексию
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private interface Action {
+        String handle(HttpExchange exchange, Map<String, String> params) throws IOException;
+    }
+}
@@ -0,0 +1,223 @@
+package maze;
+
+/**
+ * Упакованный лабиринт: каждая линия хранится как массив long, где бит j % 64 слова j / 64
+ * означает, что клетка j свободна. Колонки хранятся так же отдельно (columns), чтобы проверка
+ * колонки тоже шла по 64 клетки за раз
+ *
+ * Соседи всех 64 клеток слова получаются сдвигами: сверху и снизу - слова соседних линий,
+ * слева и справа - то же слово, сдвинутое на один бит (с переносом бита из соседнего слова).
+ * Кол-во свободных соседей считается побитовым сложением четырёх масок, поэтому одна операция
+ * классифицирует сразу 64 клетки как тупик, коридор или развилку
+ *
+ * Клетки за пределами лабиринта считаются стенами
+ */
+public class WallScanner {
+    final static int DEAD_END = 1;
+    final static int CORRIDOR = 2;
+    final static int JUNCTION = 3;
+
+    int height;
+    int width;
+    int words;
+    int columnWords;
+    long[] open;
+    long[] columns;
+
+    /**
+     * Упаковывает лабиринт: слово линии собирается без ветвлений (клетка свободна, если она не равна
+     * Maze.WALL, т.е. (cell - 1 | 1 - cell) < 0) и записывается целиком.
+     * Колонки получаются из линий транспонированием блоков 64 x 64 бит при первой проверке колонки
+     */
+    public WallScanner(int[][] maze) {
+        height = maze.length;
+        width = maze[0].length;
+        words = (width + 63) >>> 6;
+        columnWords = (height + 63) >>> 6;
+        open = new long[height * words];
+
+        for (int i = 0; i < height; i++) {
+            int[] line = maze[i];
+
+            for (int word = 0; word < words; word++) {
+                int from = word << 6;
+                int to = Math.min(line.length, from + 64);
+                long bits = 0;
+
+                for (int j = from; j < to; j++) {
+                    bits |= (long) ((line[j] - Maze.WALL | Maze.WALL - line[j]) >>> 31) << j;
+                }
+
+                open[i * words + word] = bits;
+            }
+        }
+    }
+
+    private void fillColumns() {
+        long[] block = new long[64];
+        columns = new long[width * columnWords];
+
+        for (int columnWord = 0; columnWord < columnWords; columnWord++) {
+            for (int word = 0; word < words; word++) {
+                for (int k = 0; k < 64; k++) {
+                    block[k] = getOpen((columnWord << 6) + k, word);
+                }
+
+                transpose(block);
+
+                for (int k = 0; k < 64 && (word << 6) + k < width; k++) {
+                    columns[((word << 6) + k) * columnWords + columnWord] = block[k];
+                }
+            }
+        }
+    }
+
+    /**
+     * Транспонирует матрицу 64 x 64 бит на месте: бит c слова k переходит в бит k слова c
+     * На каждом шаге меняются местами блоки вдвое меньшего размера (32, 16, ..., 1)
+     */
+    private static void transpose(long[] block) {
+        long mask = 0x00000000FFFFFFFFL;
+
+        for (int j = 32; j != 0; j >>>= 1, mask ^= mask << j) {
+            for (int k = 0; k < 64; k = ((k | j) + 1) & ~j) {
+                long swap = ((block[k] >>> j) ^ block[k | j]) & mask;
+                block[k] ^= swap << j;
+                block[k | j] ^= swap;
+            }
+        }
+    }
+
+    private long getOpen(int y, int word) {
+        if (y < 0 || y >= height || word < 0 || word >= words) return 0;
+        return open[y * words + word];
+    }
+
+    /**
+     * @return маска клеток, у которых свободен сосед слева
+     */
+    private long getLeft(int y, int word) {
+        return getOpen(y, word) << 1 | getOpen(y, word - 1) >>> 63;
+    }
+
+    /**
+     * @return маска клеток, у которых свободен сосед справа
+     */
+    private long getRight(int y, int word) {
+        return getOpen(y, word) >>> 1 | getOpen(y, word + 1) << 63;
+    }
+
+    /**
+     * Складывает побитово четыре маски соседей и выбирает свободные клетки нужного вида
+     * @param kind DEAD_END - один сосед, CORRIDOR - два, JUNCTION - три или четыре
+     * @return маска клеток слова
+     */
+    private long classify(int y, int word, int kind) {
+        long top = getOpen(y - 1, word);
+        long bottom = getOpen(y + 1, word);
+        long left = getLeft(y, word);
+        long right = getRight(y, word);
+
+        long verticalOnes = top ^ bottom;
+        long verticalTwos = top & bottom;
+        long horizontalOnes = left ^ right;
+        long horizontalTwos = left & right;
+        long carry = verticalOnes & horizontalOnes;
+
+        long ones = verticalOnes ^ horizontalOnes;
+        long twos = verticalTwos ^ horizontalTwos ^ carry;
+        long fours = verticalTwos & horizontalTwos | (verticalTwos ^ horizontalTwos) & carry;
+
+        switch (kind) {
+            case DEAD_END:
+                return getOpen(y, word) & ones & ~twos & ~fours;
+            case CORRIDOR:
+                return getOpen(y, word) & ~ones & twos & ~fours;
+            default:
+                return getOpen(y, word) & (ones & twos | fours);
+        }
+    }
+
+    /**
+     * @return маска свободных клеток слова
+     */
+    public long getOpenMask(int y, int word) {
+        return getOpen(y, word);
+    }
+
+    /**
+     * @return маска свободных клеток слова с одним свободным соседом
+     */
+    public long getDeadEndMask(int y, int word) {
+        return classify(y, word, DEAD_END);
+    }
+
+    /**
+     * @return маска свободных клеток слова с двумя свободными соседями (прямых и с поворотом)
+     */
+    public long getCorridorMask(int y, int word) {
+        return classify(y, word, CORRIDOR);
+    }
+
+    /**
+     * @return маска свободных клеток слова с тремя или четырьмя свободными соседями
+     */
+    public long getJunctionMask(int y, int word) {
+        return classify(y, word, JUNCTION);
+    }
+
+    /**
+     * @return маска клеток слова, у которых ровно два свободных соседа и они на одной прямой
+     * (сама клетка при этом может быть и стеной)
+     */
+    public long getStraightMask(int y, int word) {
+        long top = getOpen(y - 1, word);
+        long bottom = getOpen(y + 1, word);
+        long left = getLeft(y, word);
+        long right = getRight(y, word);
+
+        return left & right & ~top & ~bottom | top & bottom & ~left & ~right;
+    }
+
+    public boolean isStraight(int y, int x) {
+        return (getStraightMask(y, x >>> 6) >>> x & 1) != 0;
+    }
+
+    public boolean isOpen(int y, int x) {
+        return (getOpen(y, x >>> 6) >>> x & 1) != 0;
+    }
+
+    /**
+     * Проверяет, что все клетки линии строго между x1 и x2 свободны, по 64 клетки за раз
+     */
+    public boolean isOpenInLine(int y, int x1, int x2) {
+        return isAllOpen(open, y * words, x1, x2);
+    }
+
+    /**
+     * Проверяет, что все клетки колонки строго между y1 и y2 свободны, по 64 клетки за раз
+     */
+    public boolean isOpenInColumn(int x, int y1, int y2) {
+        if (columns == null) fillColumns();
+        return isAllOpen(columns, x * columnWords, y1, y2);
+    }
+
+    /**
+     * Проверяет, что в упакованной линии (или колонке), которая начинается со слова offset,
+     * все биты строго между index1 и index2 установлены
+     */
+    private static boolean isAllOpen(long[] bits, int offset, int index1, int index2) {
+        int from = Math.min(index1, index2) + 1;
+        int to = Math.max(index1, index2);
+
+        for (int word = from >>> 6; from < to; word++) {
+            int end = Math.min(to, (word + 1) << 6);
+            long mask = end - from == 64 ? -1L : (1L << (end - from)) - 1 << from;
+
+            if ((bits[offset + word] & mask) != mask) return false;
+            from = end;
+        }
+
+        return true;
+    }
+}